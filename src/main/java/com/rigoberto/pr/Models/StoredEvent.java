@@ -4,10 +4,17 @@ public class StoredEvent {
     private Long id;
     private String type;
     private String payload;
+    private PayloadLoader payloadLoader;
     private String status;
     private int attempts;
     private int maxAttempts;
 
+    /** Carga un payload guardado fuera de la fila del evento. */
+    @FunctionalInterface
+    public interface PayloadLoader {
+        String load() throws Exception;
+    }
+
     public StoredEvent(Long id, String type, String payload, String status, int attempts, int maxAttempts) {
         this.id = id;
         this.type = type;
@@ -25,6 +32,14 @@ public class StoredEvent {
         this.maxAttempts = maxAttempts;
     }
 
+    public StoredEvent(Long id, String type, PayloadLoader payloadLoader, int attempts, int maxAttempts) {
+        this.id = id;
+        this.type = type;
+        this.payloadLoader = payloadLoader;
+        this.attempts = attempts;
+        this.maxAttempts = maxAttempts;
+    }
+
     public Long getId() {
         return id;
     }
@@ -33,8 +48,21 @@ public class StoredEvent {
         return type;
     }
 
+    /**
+     * Devuelve el payload. Si está guardado fuera de línea se carga en cada llamada
+     * y no queda retenido en el evento.
+     */
     public String getPayload() {
-        return payload;
+        if (payloadLoader == null) {
+            return payload;
+        }
+        try {
+            return payloadLoader.load();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo cargar el payload del evento " + id, e);
+        }
     }
 
     public String getStatus() {
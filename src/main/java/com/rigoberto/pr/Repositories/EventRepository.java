@@ -0,0 +1,28 @@
+package com.rigoberto.pr.Repositories;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+import com.rigoberto.pr.Models.StoredEvent;
+
+/**
+ * Almacenamiento de eventos que usan EventSystem y EventWorker.
+ * La implementación por defecto es {@link PostgreSQLEventRepository}.
+ */
+public interface EventRepository {
+
+    void saveEvent(String eventType, String payload, int maxAttempts) throws SQLException;
+
+    List<StoredEvent> fetchPendingEvents(int limit) throws SQLException;
+
+    List<StoredEvent> claimPendingEvents(int limit, long leaseMs) throws SQLException;
+
+    void releaseLeases(Collection<Long> ids) throws SQLException;
+
+    String loadPayload(long eventId) throws SQLException;
+
+    void markAsSuccess(long id) throws SQLException;
+
+    void markAsFailed(long id, int attempts, long backoffMs) throws SQLException;
+}
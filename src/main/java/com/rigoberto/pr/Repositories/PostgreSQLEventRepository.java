@@ -2,20 +2,30 @@ package com.rigoberto.pr.Repositories;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import com.rigoberto.pr.Models.StoredEvent;
 
-public class PostgreSQLEventRepository {
+public class PostgreSQLEventRepository implements EventRepository {
+
+    // Payloads de más de 64K caracteres se guardan en event_payloads
+    public static final int DEFAULT_PAYLOAD_OFFLOAD_THRESHOLD = 64 * 1024;
 
     private final String jdbcUrl;
     private final String user;
     private final String password;
+    private final int payloadOffloadThreshold;
 
     public PostgreSQLEventRepository(String jdbcUrl, String user, String password) throws SQLException {
+        this(jdbcUrl, user, password, DEFAULT_PAYLOAD_OFFLOAD_THRESHOLD);
+    }
+
+    public PostgreSQLEventRepository(String jdbcUrl, String user, String password, int payloadOffloadThreshold) throws SQLException {
         this.jdbcUrl = jdbcUrl;
         this.user = user;
         this.password = password;
+        this.payloadOffloadThreshold = payloadOffloadThreshold;
         initSchema();
     }
 
@@ -31,17 +41,64 @@ public class PostgreSQLEventRepository {
                 "CREATE TABLE IF NOT EXISTS events (" +
                 "    id BIGSERIAL PRIMARY KEY," +
                 "    event_type VARCHAR(255) NOT NULL," +
-                "    payload TEXT NOT NULL," +
+                "    payload TEXT," +
+                "    payload_external BOOLEAN NOT NULL DEFAULT FALSE," +
                 "    status VARCHAR(20) NOT NULL DEFAULT 'PENDING'," +
                 "    attempts INT NOT NULL DEFAULT 0," +
                 "    max_attempts INT NOT NULL DEFAULT 5," +
                 "    next_attempt_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()," +
                 "    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()" +
                 ")");
+
+            migrateExternalPayloadColumns(st);
+
+            st.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS event_payloads (" +
+                "    event_id BIGINT PRIMARY KEY REFERENCES events(id) ON DELETE CASCADE," +
+                "    payload TEXT NOT NULL" +
+                ")");
+        }
+    }
+
+    /**
+     * Migra tablas events creadas antes de los payloads externos. Solo ejecuta ALTER TABLE
+     * (que bloquea events en exclusiva) si la columna todavía no tiene la forma esperada.
+     */
+    private void migrateExternalPayloadColumns(Statement st) throws SQLException {
+        boolean payloadNotNull = false;
+        boolean hasPayloadExternal = false;
+
+        try (ResultSet rs = st.executeQuery(
+                "SELECT column_name, is_nullable FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'events' " +
+                "AND column_name IN ('payload', 'payload_external')")) {
+
+            while (rs.next()) {
+                if ("payload".equals(rs.getString("column_name"))) {
+                    payloadNotNull = "NO".equals(rs.getString("is_nullable"));
+                } else {
+                    hasPayloadExternal = true;
+                }
+            }
+        }
+
+        // Payloads grandes: la fila de events queda con payload NULL y payload_external=TRUE
+        if (payloadNotNull) {
+            st.executeUpdate("ALTER TABLE events ALTER COLUMN payload DROP NOT NULL");
+        }
+        if (!hasPayloadExternal) {
+            st.executeUpdate(
+                "ALTER TABLE events ADD COLUMN IF NOT EXISTS payload_external BOOLEAN NOT NULL DEFAULT FALSE");
         }
     }
 
+    @Override
     public void saveEvent(String eventType, String payload, int maxAttempts) throws SQLException {
+        if (payload.length() > payloadOffloadThreshold) {
+            saveEventWithExternalPayload(eventType, payload, maxAttempts);
+            return;
+        }
+
         try (Connection con = getConnection();
              PreparedStatement ps = con.prepareStatement(
                 "INSERT INTO events (event_type, payload, max_attempts) " +
@@ -54,12 +111,46 @@ public class PostgreSQLEventRepository {
         }
     }
 
+    private void saveEventWithExternalPayload(String eventType, String payload, int maxAttempts) throws SQLException {
+        try (Connection con = getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement insertEvent = con.prepareStatement(
+                    "INSERT INTO events (event_type, payload, payload_external, max_attempts) " +
+                    "VALUES (?, NULL, TRUE, ?) RETURNING id");
+                 PreparedStatement insertPayload = con.prepareStatement(
+                    "INSERT INTO event_payloads (event_id, payload) VALUES (?, ?)")) {
+
+                insertEvent.setString(1, eventType);
+                insertEvent.setInt(2, maxAttempts);
+                long id;
+                try (ResultSet rs = insertEvent.executeQuery()) {
+                    rs.next();
+                    id = rs.getLong(1);
+                }
+
+                insertPayload.setLong(1, id);
+                insertPayload.setString(2, payload);
+                insertPayload.executeUpdate();
+
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Devuelve los eventos pendientes. Los payloads guardados en event_payloads no se leen
+     * aquí: el StoredEvent los carga bajo demanda con {@link #loadPayload(long)}.
+     */
+    @Override
     public List<StoredEvent> fetchPendingEvents(int limit) throws SQLException {
         List<StoredEvent> list = new ArrayList<>();
 
         try (Connection con = getConnection();
              PreparedStatement ps = con.prepareStatement(
-                "SELECT id, event_type, payload, attempts, max_attempts " +
+                "SELECT id, event_type, payload, payload_external, attempts, max_attempts " +
                 "FROM events " +
                 "WHERE status='PENDING' AND next_attempt_at <= NOW() " +
                 "ORDER BY created_at ASC " +
@@ -69,18 +160,101 @@ public class PostgreSQLEventRepository {
             ResultSet rs = ps.executeQuery();
 
             while (rs.next()) {
-                list.add(new StoredEvent(
-                        rs.getLong("id"),
-                        rs.getString("event_type"),
-                        rs.getString("payload"),
-                        rs.getInt("attempts"),
-                        rs.getInt("max_attempts")
-                ));
+                list.add(toStoredEvent(rs));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Reclama eventos pendientes para este worker: les mueve next_attempt_at a
+     * NOW() + leaseMs para que ningún otro nodo los tome mientras se procesan.
+     * Si el worker muere, los eventos vuelven a estar disponibles al vencer el lease.
+     */
+    @Override
+    public List<StoredEvent> claimPendingEvents(int limit, long leaseMs) throws SQLException {
+        List<StoredEvent> list = new ArrayList<>();
+
+        try (Connection con = getConnection();
+             PreparedStatement ps = con.prepareStatement(
+                "UPDATE events SET next_attempt_at=NOW() + (? || ' milliseconds')::interval " +
+                "WHERE id IN (" +
+                "    SELECT id FROM events " +
+                "    WHERE status='PENDING' AND next_attempt_at <= NOW() " +
+                "    ORDER BY created_at ASC " +
+                "    LIMIT ? " +
+                "    FOR UPDATE SKIP LOCKED" +
+                ") " +
+                "RETURNING id, event_type, payload, payload_external, attempts, max_attempts")) {
+
+            ps.setLong(1, leaseMs);
+            ps.setInt(2, limit);
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next()) {
+                list.add(toStoredEvent(rs));
             }
         }
         return list;
     }
 
+    /** Libera el lease de eventos reclamados para que cualquier nodo los tome ya. */
+    @Override
+    public void releaseLeases(Collection<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try (Connection con = getConnection();
+             PreparedStatement ps = con.prepareStatement(
+                "UPDATE events SET next_attempt_at=NOW() " +
+                "WHERE id = ANY(?) AND status='PENDING'")) {
+
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            ps.executeUpdate();
+        }
+    }
+
+    private StoredEvent toStoredEvent(ResultSet rs) throws SQLException {
+        long id = rs.getLong("id");
+        if (rs.getBoolean("payload_external")) {
+            return new StoredEvent(
+                    id,
+                    rs.getString("event_type"),
+                    () -> loadPayload(id),
+                    rs.getInt("attempts"),
+                    rs.getInt("max_attempts")
+            );
+        }
+        return new StoredEvent(
+                id,
+                rs.getString("event_type"),
+                rs.getString("payload"),
+                rs.getInt("attempts"),
+                rs.getInt("max_attempts")
+        );
+    }
+
+    /**
+     * Carga el payload externo de un evento. Se lee completo y la conexión se cierra
+     * enseguida; lo que se evita es leerlo durante el polling.
+     */
+    @Override
+    public String loadPayload(long eventId) throws SQLException {
+        try (Connection con = getConnection();
+             PreparedStatement ps = con.prepareStatement(
+                "SELECT payload FROM event_payloads WHERE event_id = ?")) {
+
+            ps.setLong(1, eventId);
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("No existe payload externo para el evento " + eventId);
+            }
+            return rs.getString("payload");
+        }
+    }
+
+    @Override
     public void markAsSuccess(long id) throws SQLException {
         try (Connection con = getConnection();
              PreparedStatement ps = con.prepareStatement(
@@ -92,6 +266,7 @@ public class PostgreSQLEventRepository {
         }
     }
 
+    @Override
     public void markAsFailed(long id, int attempts, long backoffMs) throws SQLException {
         try (Connection con = getConnection();
              PreparedStatement ps = con.prepareStatement(
@@ -0,0 +1,37 @@
+package com.rigoberto.pr.Workers;
+
+/**
+ * Circuit breaker por tipo de evento.
+ *
+ * Tras {@code failureThreshold} fallos consecutivos se abre durante {@code openMs};
+ * mientras está abierto el worker no gasta reintentos locales en ese tipo y lo
+ * manda directamente al backoff persistido. Un éxito lo vuelve a cerrar.
+ */
+class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openMs;
+    private int consecutiveFailures;
+    private long openUntil;
+
+    CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    synchronized boolean allowsLocalRetry() {
+        return System.currentTimeMillis() >= openUntil;
+    }
+
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        openUntil = 0;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openMs;
+        }
+    }
+}
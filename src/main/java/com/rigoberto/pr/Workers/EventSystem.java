@@ -1,28 +1,37 @@
 package com.rigoberto.pr.Workers;
 
-import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
+import com.rigoberto.pr.Repositories.EventRepository;
 import com.rigoberto.pr.Repositories.PostgreSQLEventRepository;
 import org.json.JSONObject;
 
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-public class EventSystem {
+public class EventSystem implements AutoCloseable {
 
     private final EventBus eventBus;
-    private final PostgreSQLEventRepository repo;
+    private final EventRepository repo;
     private final EventWorker worker;
+    private volatile boolean closed;
 
     public EventSystem(String jdbcUrl, String user, String pwd) throws Exception {
+        this(jdbcUrl, user, pwd, RetryPolicy.defaults());
+    }
+
+    public EventSystem(String jdbcUrl, String user, String pwd, RetryPolicy retryPolicy) throws Exception {
+        this(new PostgreSQLEventRepository(jdbcUrl, user, pwd), 5, retryPolicy);
+    }
 
-        this.eventBus = new AsyncEventBus(
-                "persistent-eventbus",
-                Executors.newCachedThreadPool()
-        );
+    // Para tests: permite instrumentar el repositorio y ajustar la concurrencia
+    EventSystem(EventRepository repo, int concurrency, RetryPolicy retryPolicy) {
 
-        this.repo = new PostgreSQLEventRepository(jdbcUrl, user, pwd);
+        // Síncrono: los listeners corren en los hilos del EventWorker, que confirma
+        // el evento solo cuando terminan, reintenta sus fallos y controla su apagado
+        this.eventBus = EventWorker.newEventBus();
 
-        this.worker = new EventWorker(repo, eventBus, 5);
+        this.repo = repo;
+
+        this.worker = new EventWorker(repo, eventBus, concurrency, retryPolicy);
 
         worker.start();
     }
@@ -32,11 +41,29 @@ public class EventSystem {
     }
 
     public void post(Object event) throws Exception {
+        if (closed) {
+            throw new IllegalStateException("EventSystem cerrado");
+        }
         // Serializar usando org.json
         JSONObject json = new JSONObject(event);
         String payload = json.toString();
         String type = event.getClass().getName();
         repo.saveEvent(type, payload, 5);
     }
-}
 
+    @Override
+    public void close() {
+        close(EventWorker.DEFAULT_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Apagado ordenado: deja de aceptar eventos y drena el worker, cuyos hilos ejecutan
+     * los listeners. Ver {@link EventWorker#close(long, TimeUnit)}.
+     *
+     * @return true si no quedó trabajo en curso al vencer el plazo
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+        closed = true;
+        return worker.close(timeout, unit);
+    }
+}
@@ -2,51 +2,255 @@ package com.rigoberto.pr.Workers;
 
 import com.google.common.eventbus.EventBus;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.rigoberto.pr.Models.StoredEvent;
-import com.rigoberto.pr.Repositories.PostgreSQLEventRepository;
+import com.rigoberto.pr.Repositories.EventRepository;
 
-public class EventWorker {
+public class EventWorker implements AutoCloseable {
 
-    private final PostgreSQLEventRepository repo;
+    public static final long DEFAULT_DRAIN_TIMEOUT_MS = 30_000;
+
+    private final EventRepository repo;
     private final EventBus eventBus;
     private final ScheduledExecutorService scheduler;
-    private final ExecutorService workers;
+    private final ThreadPoolExecutor workers;
+    private final int concurrency;
     private final int batchSize = 20;
+    private final long leaseMs = 60_000;
+    private final RetryPolicy retryPolicy;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    // Eventos reclamados por este worker (en cola o en proceso)
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+    private volatile boolean draining;
+    // Venció el plazo de drenado: lo que aún está en proceso no se confirma
+    private volatile boolean abandoned;
+
+    public EventWorker(EventRepository repo, EventBus eventBus, int concurrency) {
+        this(repo, eventBus, concurrency, RetryPolicy.defaults());
+    }
 
-    public EventWorker(PostgreSQLEventRepository repo, EventBus eventBus, int concurrency) {
+    public EventWorker(EventRepository repo, EventBus eventBus, int concurrency, RetryPolicy retryPolicy) {
         this.repo = repo;
         this.eventBus = eventBus;
+        this.retryPolicy = retryPolicy;
+        this.concurrency = concurrency;
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        this.workers = Executors.newFixedThreadPool(concurrency);
+        // Igual que newFixedThreadPool, pero con acceso a la cola para drenarla al cerrar
+        this.workers = new ThreadPoolExecutor(concurrency, concurrency,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Crea el EventBus síncrono que espera el worker: las excepciones de los listeners
+     * llegan al bucle de reintentos en lugar de quedarse en el log de Guava.
+     */
+    public static EventBus newEventBus() {
+        return new EventBus(new ListenerFailures());
     }
 
     public void start() {
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                List<StoredEvent> events = repo.fetchPendingEvents(batchSize);
-                for (var ev : events) {
-                    workers.submit(() -> processEvent(ev));
+        scheduler.scheduleAtFixedRate(this::poll, 0, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reclama eventos mientras haya hilos libres. Corre siempre en el hilo del scheduler:
+     * cada segundo y, además, cada vez que un evento termina y deja un hilo libre.
+     */
+    private void poll() {
+        try {
+            while (!draining) {
+                // Solo se reclama lo que se puede empezar ya, para que nada espere en cola con el lease corriendo
+                int free = Math.min(batchSize, concurrency - claimed.size());
+                if (free <= 0) {
+                    return;
+                }
+                List<StoredEvent> events = repo.claimPendingEvents(free, leaseMs);
+                for (int i = 0; i < events.size(); i++) {
+                    StoredEvent ev = events.get(i);
+                    claimed.add(ev.getId());
+                    try {
+                        workers.execute(new EventTask(ev));
+                    } catch (RejectedExecutionException ex) {
+                        // close() apagó el pool durante este ciclo: se devuelve el resto del lote
+                        List<Long> rest = new ArrayList<>();
+                        for (StoredEvent pending : events.subList(i, events.size())) {
+                            claimed.add(pending.getId());
+                            rest.add(pending.getId());
+                        }
+                        releaseClaimed(rest);
+                        return;
+                    }
+                }
+                // Un lote incompleto significa que no hay más pendientes por ahora
+                if (events.size() < free) {
+                    return;
                 }
-            } catch (Exception ex) {
-                ex.printStackTrace();
             }
-        }, 0, 1, TimeUnit.SECONDS);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // Pide un poll() sin esperar al siguiente tick; como mucho queda uno pendiente
+    private void requestPoll() {
+        if (draining || !pollRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> {
+                pollRequested.set(false);
+                poll();
+            });
+        } catch (RejectedExecutionException ex) {
+            // close() ya apagó el scheduler
+            pollRequested.set(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        close(DEFAULT_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drena el worker: deja de reclamar eventos, libera los que aún no habían empezado,
+     * espera a los que están en proceso hasta {@code timeout} y libera el lease de los
+     * que no terminaron, para que otro nodo los tome sin esperar a que venza.
+     * Esos eventos no se marcan como SUCCESS aunque su listener acabe después.
+     *
+     * @return true si todo el trabajo en curso terminó dentro del plazo
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        draining = true;
+
+        boolean drained;
+        try {
+            // Primero el polling, para que un ciclo en curso aún pueda entregar lo que reclamó
+            scheduler.shutdown();
+            scheduler.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+            List<Runnable> queued = new ArrayList<>();
+            workers.getQueue().drainTo(queued);
+            releaseClaimed(idsOf(queued));
+
+            workers.shutdown();
+            drained = workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = false;
+        }
+
+        if (!drained) {
+            abandoned = true;
+            releaseClaimed(idsOf(workers.shutdownNow()));
+        }
+
+        // Lo que sigue reclamado no va a terminar aquí: eventos abandonados o de un ciclo
+        // de polling que no acabó a tiempo
+        List<Long> unfinished = new ArrayList<>(claimed);
+        if (!unfinished.isEmpty()) {
+            System.err.println("EventWorker: " + unfinished.size() + " eventos sin terminar al cerrar, " +
+                    "se libera su lease para reintentarlos: " + unfinished);
+            releaseClaimed(unfinished);
+        }
+        return drained;
+    }
+
+    private List<Long> idsOf(List<Runnable> tasks) {
+        List<Long> ids = new ArrayList<>();
+        for (Runnable task : tasks) {
+            ids.add(((EventTask) task).event.getId());
+        }
+        return ids;
     }
 
-    private void processEvent(StoredEvent ev) {
+    // Solo libera los ids que este worker aún tenía reclamados, para no liberar dos veces el mismo lease
+    private void releaseClaimed(List<Long> ids) {
+        List<Long> owned = new ArrayList<>();
+        for (Long id : ids) {
+            if (claimed.remove(id)) {
+                owned.add(id);
+            }
+        }
         try {
-            // Aquí reconstruyes tu evento real. Ejemplo:
-            Object realEvent = deserializeEvent(ev.getType(), ev.getPayload());
+            repo.releaseLeases(owned);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private class EventTask implements Runnable {
+        private final StoredEvent event;
+
+        EventTask(StoredEvent event) {
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            // Si el evento se abandona sigue en claimed y close() libera su lease
+            if (handleEvent(event)) {
+                claimed.remove(event.getId());
+                requestPoll();
+            }
+        }
+    }
+
+    /** @return false si el evento se abandonó al vencer el plazo de drenado, sin confirmarlo */
+    private boolean handleEvent(StoredEvent ev) {
+        CircuitBreaker breaker = breakers.computeIfAbsent(ev.getType(),
+                t -> new CircuitBreaker(retryPolicy.getBreakerFailureThreshold(), retryPolicy.getBreakerOpenMs()));
+        boolean delivered = false;
 
-            eventBus.post(realEvent);
+        for (int localAttempt = 1; ; localAttempt++) {
+            try {
+                if (!delivered) {
+                    // Aquí reconstruyes tu evento real. Ejemplo:
+                    Object realEvent = deserializeEvent(ev.getType(), ev.getPayload());
+
+                    // Los listeners se ejecutan en este hilo: al volver el evento está procesado
+                    ListenerFailures.clear();
+                    eventBus.post(realEvent);
+                    ListenerFailures.rethrow();
+                    delivered = true;
+                }
 
-            repo.markAsSuccess(ev.getId());
+                if (abandoned) {
+                    return false;
+                }
 
-        } catch (Exception e) {
-            retryWithBackoff(ev);
+                // Si solo falló el ack, el reintento local no vuelve a publicar el evento
+                repo.markAsSuccess(ev.getId());
+                breaker.recordSuccess();
+                return true;
+
+            } catch (Exception e) {
+                breaker.recordFailure();
+
+                if (abandoned) {
+                    return false;
+                }
+                if (draining || localAttempt >= retryPolicy.getLocalMaxAttempts() || !breaker.allowsLocalRetry()) {
+                    e.printStackTrace();
+                    retryWithBackoff(ev);
+                    return true;
+                }
+
+                try {
+                    Thread.sleep(retryPolicy.localDelayMs(localAttempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    retryWithBackoff(ev);
+                    return true;
+                }
+            }
         }
     }
 
@@ -59,7 +263,7 @@ public class EventWorker {
                 return;
             }
 
-            long backoff = (long) Math.pow(2, attempt) * 1000L; // 2^n segundos
+            long backoff = retryPolicy.persistedBackoffMs(attempt); // ~2^n segundos con jitter
 
             repo.markAsFailed(ev.getId(), attempt, backoff);
 
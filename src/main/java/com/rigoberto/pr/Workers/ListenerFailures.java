@@ -0,0 +1,41 @@
+package com.rigoberto.pr.Workers;
+
+import com.google.common.eventbus.SubscriberExceptionContext;
+import com.google.common.eventbus.SubscriberExceptionHandler;
+
+/**
+ * Guava EventBus captura las excepciones de los listeners y no las propaga a post().
+ * Como el bus es síncrono, este handler las guarda en el hilo que publica para que
+ * el EventWorker pueda tratarlas como un fallo del evento y reintentarlo.
+ */
+class ListenerFailures implements SubscriberExceptionHandler {
+
+    private static final ThreadLocal<Throwable> FAILURE = new ThreadLocal<>();
+
+    @Override
+    public void handleException(Throwable exception, SubscriberExceptionContext context) {
+        Throwable first = FAILURE.get();
+        if (first == null) {
+            FAILURE.set(exception);
+        } else {
+            first.addSuppressed(exception);
+        }
+    }
+
+    static void clear() {
+        FAILURE.remove();
+    }
+
+    /** Lanza (y limpia) el fallo de listener registrado en este hilo desde el último clear(). */
+    static void rethrow() throws Exception {
+        Throwable failure = FAILURE.get();
+        FAILURE.remove();
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof Exception) {
+            throw (Exception) failure;
+        }
+        throw new Exception("Fallo en un listener", failure);
+    }
+}
@@ -0,0 +1,154 @@
+package com.rigoberto.pr.Workers;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Política de reintentos del EventWorker.
+ *
+ * Primero se reintenta en memoria con backoff exponencial corto y jitter
+ * (fallos transitorios). Solo cuando se agotan los intentos locales el evento
+ * se persiste con el backoff largo {@code 2^n * persistedBaseMs}, también con jitter.
+ */
+public class RetryPolicy {
+
+    private final int localMaxAttempts;
+    private final long localInitialDelayMs;
+    private final long localMaxDelayMs;
+    private final double multiplier;
+    private final double jitterFactor;
+    private final long persistedBaseMs;
+    private final int breakerFailureThreshold;
+    private final long breakerOpenMs;
+
+    private RetryPolicy(Builder b) {
+        if (b.localMaxAttempts < 1) {
+            throw new IllegalArgumentException("localMaxAttempts debe ser >= 1");
+        }
+        if (b.localInitialDelayMs < 0 || b.localMaxDelayMs < 0 || b.persistedBaseMs < 0) {
+            throw new IllegalArgumentException("Las esperas no pueden ser negativas");
+        }
+        if (!(b.multiplier >= 1)) {
+            throw new IllegalArgumentException("multiplier debe ser >= 1");
+        }
+        if (!(b.jitterFactor >= 0 && b.jitterFactor <= 1)) {
+            throw new IllegalArgumentException("jitterFactor debe estar entre 0 y 1");
+        }
+        if (b.breakerFailureThreshold < 1) {
+            throw new IllegalArgumentException("breakerFailureThreshold debe ser >= 1");
+        }
+        if (b.breakerOpenMs < 0) {
+            throw new IllegalArgumentException("breakerOpenMs no puede ser negativo");
+        }
+        this.localMaxAttempts = b.localMaxAttempts;
+        this.localInitialDelayMs = b.localInitialDelayMs;
+        this.localMaxDelayMs = b.localMaxDelayMs;
+        this.multiplier = b.multiplier;
+        this.jitterFactor = b.jitterFactor;
+        this.persistedBaseMs = b.persistedBaseMs;
+        this.breakerFailureThreshold = b.breakerFailureThreshold;
+        this.breakerOpenMs = b.breakerOpenMs;
+    }
+
+    /**
+     * 3 intentos locales (50ms, 100ms), jitter del 50%, backoff persistido de 2^n segundos
+     * y circuit breaker que se abre 30s tras 10 fallos consecutivos del mismo tipo.
+     */
+    public static RetryPolicy defaults() {
+        return builder().build();
+    }
+
+    /** Builder que parte de los valores de {@link #defaults()}; build() valida la configuración. */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Espera antes del intento local {@code attempt + 1} (attempt empieza en 1). */
+    public long localDelayMs(int attempt) {
+        double delay = localInitialDelayMs * Math.pow(multiplier, attempt - 1);
+        return jitter((long) Math.min(delay, localMaxDelayMs));
+    }
+
+    /** Backoff persistido para el intento {@code attempt}: 2^attempt * base, con jitter. */
+    public long persistedBackoffMs(int attempt) {
+        return jitter((long) Math.pow(2, attempt) * persistedBaseMs);
+    }
+
+    private long jitter(long delayMs) {
+        if (delayMs <= 0 || jitterFactor == 0) {
+            return Math.max(delayMs, 0);
+        }
+        // Resta hasta jitterFactor * delay para que los reintentos no lleguen todos a la vez
+        long spread = (long) (delayMs * jitterFactor);
+        return delayMs - ThreadLocalRandom.current().nextLong(spread + 1);
+    }
+
+    public int getLocalMaxAttempts() {
+        return localMaxAttempts;
+    }
+
+    public int getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public long getBreakerOpenMs() {
+        return breakerOpenMs;
+    }
+
+    public static class Builder {
+        private int localMaxAttempts = 3;
+        private long localInitialDelayMs = 50;
+        private long localMaxDelayMs = 1000;
+        private double multiplier = 2.0;
+        private double jitterFactor = 0.5;
+        private long persistedBaseMs = 1000;
+        private int breakerFailureThreshold = 10;
+        private long breakerOpenMs = 30_000;
+
+        private Builder() {
+        }
+
+        public Builder localMaxAttempts(int localMaxAttempts) {
+            this.localMaxAttempts = localMaxAttempts;
+            return this;
+        }
+
+        public Builder localInitialDelayMs(long localInitialDelayMs) {
+            this.localInitialDelayMs = localInitialDelayMs;
+            return this;
+        }
+
+        public Builder localMaxDelayMs(long localMaxDelayMs) {
+            this.localMaxDelayMs = localMaxDelayMs;
+            return this;
+        }
+
+        public Builder multiplier(double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        public Builder jitterFactor(double jitterFactor) {
+            this.jitterFactor = jitterFactor;
+            return this;
+        }
+
+        public Builder persistedBaseMs(long persistedBaseMs) {
+            this.persistedBaseMs = persistedBaseMs;
+            return this;
+        }
+
+        public Builder breakerFailureThreshold(int breakerFailureThreshold) {
+            this.breakerFailureThreshold = breakerFailureThreshold;
+            return this;
+        }
+
+        public Builder breakerOpenMs(long breakerOpenMs) {
+            this.breakerOpenMs = breakerOpenMs;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -60,6 +60,8 @@ class EventSystemIntegrationTest {
 
     @AfterEach
     void tearDown() throws Exception {
+        eventSystem.close();
+
         // Clean up after tests
         try (Connection con = DriverManager.getConnection(jdbcUrl, user, password);
              Statement st = con.createStatement()) {
@@ -156,19 +158,96 @@ class EventSystemIntegrationTest {
 
     @Test
     void testEventPersistenceAndRetrieval() throws Exception {
-        // Given: varios eventos guardados
-        eventSystem.post(new TestEvent("event-1", "Message 1"));
-        eventSystem.post(new TestEvent("event-2", "Message 2"));
-        eventSystem.post(new TestEvent("event-3", "Message 3"));
+        // Given: varios eventos guardados sin ningún worker que los reclame
+        // (el worker toma el siguiente evento en cuanto termina uno y podría procesarlos antes de la consulta)
+        eventSystem.close();
+        PostgreSQLEventRepository repo = new PostgreSQLEventRepository(jdbcUrl, user, password);
+        for (int i = 1; i <= 3; i++) {
+            repo.saveEvent(TestEvent.class.getName(), "{\"id\":\"event-" + i + "\"}", 5);
+        }
 
         // When: consultamos los eventos pendientes directamente del repositorio
-        PostgreSQLEventRepository repo = new PostgreSQLEventRepository(jdbcUrl, user, password);
         List<StoredEvent> pendingEvents = repo.fetchPendingEvents(10);
 
         // Then: deben existir los eventos pendientes
         assertTrue(pendingEvents.size() >= 3, "Debe haber al menos 3 eventos pendientes");
     }
 
+    @Test
+    void testLargePayloadIsOffloadedAndProcessed() throws Exception {
+        // Given: un listener y un evento con payload por encima del umbral
+        TestEventListener listener = new TestEventListener();
+        eventSystem.registerListener(listener);
+
+        String bigMessage = "x".repeat(PostgreSQLEventRepository.DEFAULT_PAYLOAD_OFFLOAD_THRESHOLD + 1);
+        eventSystem.post(new TestEvent("big-event", bigMessage));
+
+        // Then: la fila de events no lleva el payload, queda en event_payloads
+        try (Connection con = DriverManager.getConnection(jdbcUrl, user, password);
+             Statement st = con.createStatement()) {
+
+            ResultSet rs = st.executeQuery(
+                    "SELECT e.payload, e.payload_external, length(p.payload) AS size " +
+                    "FROM events e JOIN event_payloads p ON p.event_id = e.id");
+            assertTrue(rs.next(), "El payload debe estar en event_payloads");
+            assertNull(rs.getString("payload"), "La fila de events no debe contener el payload");
+            assertTrue(rs.getBoolean("payload_external"));
+            assertTrue(rs.getInt("size") > PostgreSQLEventRepository.DEFAULT_PAYLOAD_OFFLOAD_THRESHOLD);
+        }
+
+        // Then: el listener recibe el payload completo cargado bajo demanda
+        boolean received = listener.latch.await(5, TimeUnit.SECONDS);
+        assertTrue(received, "El evento grande debe ser procesado");
+        assertTrue(listener.receivedEvents.get(0).contains(bigMessage));
+    }
+
+    @Test
+    void testCloseDrainsInFlightEventsBeforeReturning() throws Exception {
+        // Given: un listener lento
+        SlowEventListener listener = new SlowEventListener(500);
+        eventSystem.registerListener(listener);
+        eventSystem.post(new TestEvent("slow-event", "Drain Test"));
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS), "El evento debe empezar a procesarse");
+
+        // When: cerramos el sistema mientras el listener está trabajando
+        boolean drained = eventSystem.close(5, TimeUnit.SECONDS);
+
+        // Then: close espera a que termine y el evento queda SUCCESS
+        assertTrue(drained, "El cierre debe drenar el trabajo en curso");
+        assertTrue(listener.finished, "El listener debe terminar antes de que close retorne");
+        assertThrows(IllegalStateException.class, () -> eventSystem.post(new TestEvent("late", "late")));
+
+        try (Connection con = DriverManager.getConnection(jdbcUrl, user, password);
+             Statement st = con.createStatement()) {
+
+            ResultSet rs = st.executeQuery("SELECT status FROM events");
+            rs.next();
+            assertEquals("SUCCESS", rs.getString("status"));
+        }
+    }
+
+    @Test
+    void testCloseReleasesLeasesOfUnfinishedEvents() throws Exception {
+        // Given: varios eventos reclamados con un listener que no termina a tiempo
+        SlowEventListener listener = new SlowEventListener(30_000);
+        eventSystem.registerListener(listener);
+        for (int i = 0; i < 3; i++) {
+            eventSystem.post(new TestEvent("unfinished-" + i, "Lease Test"));
+        }
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS), "Los eventos deben empezar a procesarse");
+
+        // When: el plazo de drenado vence con los listeners trabajando
+        boolean drained = eventSystem.close(500, TimeUnit.MILLISECONDS);
+
+        // Then: ningún evento queda SUCCESS y todos se pueden reclamar de inmediato
+        assertFalse(drained, "close debe reportar que no drenó todo el trabajo");
+        assertFalse(listener.finished);
+
+        PostgreSQLEventRepository repo = new PostgreSQLEventRepository(jdbcUrl, user, password);
+        assertEquals(3, repo.claimPendingEvents(10, 60_000).size(),
+                "Los eventos sin terminar deben poder reclamarse sin esperar al lease");
+    }
+
     // Event de prueba
     public static class TestEvent {
         private final String id;
@@ -200,6 +279,24 @@ class EventSystemIntegrationTest {
         }
     }
 
+    // Listener que tarda en procesar cada evento
+    public static class SlowEventListener {
+        public final CountDownLatch started = new CountDownLatch(1);
+        public volatile boolean finished;
+        private final long delayMs;
+
+        public SlowEventListener(long delayMs) {
+            this.delayMs = delayMs;
+        }
+
+        @Subscribe
+        public void handleEvent(String event) throws InterruptedException {
+            started.countDown();
+            Thread.sleep(delayMs);
+            finished = true;
+        }
+    }
+
     // Listener para múltiples eventos
     public static class MultiEventListener {
         public final CountDownLatch latch;
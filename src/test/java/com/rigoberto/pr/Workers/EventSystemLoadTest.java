@@ -0,0 +1,470 @@
+package com.rigoberto.pr.Workers;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.RateLimiter;
+import com.rigoberto.pr.Models.StoredEvent;
+import com.rigoberto.pr.Repositories.PostgreSQLEventRepository;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Harness de carga y soak para el pipeline completo EventSystem.post -> PostgreSQL -> EventWorker -> listener.
+ *
+ * Reporta throughput, latencia publish-to-handle (p50/p99/p999), round trips a la base
+ * de datos por evento y crecimiento del backlog.
+ *
+ * Por defecto usa Testcontainers (requiere Docker). Para usar un PostgreSQL externo:
+ * mvn test -Pload-tests -Dload.jdbcUrl=jdbc:postgresql://localhost:5432/testdb -Dload.user=testuser -Dload.password=testpass
+ *
+ * Parámetros (system properties, ver LoadConfig):
+ * mvn test -Pload-tests -Dload.durationSeconds=600 -Dload.workers=2 -Dload.handlerLatency=exp:20 -Dload.deliveryFailureRate=0.05
+ *
+ * Umbrales opcionales para detectar regresiones: -Dload.maxP99Ms=2000 -Dload.minThroughput=100
+ */
+class EventSystemLoadTest {
+
+    private static PostgreSQLContainer<?> postgres;
+    private static String jdbcUrl;
+    private static String user;
+    private static String password;
+
+    private final List<EventSystem> nodes = new ArrayList<>();
+
+    @BeforeAll
+    @SuppressWarnings("resource")
+    static void startDatabase() {
+        jdbcUrl = System.getProperty("load.jdbcUrl");
+        user = System.getProperty("load.user", "testuser");
+        password = System.getProperty("load.password", "testpass");
+
+        if (jdbcUrl == null) {
+            postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+                    .withDatabaseName("testdb")
+                    .withUsername(user)
+                    .withPassword(password);
+            postgres.start();
+            jdbcUrl = postgres.getJdbcUrl();
+        }
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (EventSystem node : nodes) {
+            node.close(5, TimeUnit.SECONDS);
+        }
+
+        try (Connection con = DriverManager.getConnection(jdbcUrl, user, password);
+             Statement st = con.createStatement()) {
+            st.executeUpdate("DELETE FROM events");
+        }
+    }
+
+    @Test
+    void testLoad() throws Exception {
+        LoadConfig config = LoadConfig.fromSystemProperties();
+        System.out.println(config);
+
+        // Nodos: cada EventSystem publica y consume con su propio repositorio instrumentado
+        LatencyListener listener = new LatencyListener(config);
+        List<CountingRepository> repos = new ArrayList<>();
+        for (int i = 0; i < config.workers; i++) {
+            CountingRepository repo = new CountingRepository(config);
+            EventSystem node = new EventSystem(repo, config.concurrency, RetryPolicy.defaults());
+            node.registerListener(listener);
+            repos.add(repo);
+            nodes.add(node);
+        }
+        try (Connection con = DriverManager.getConnection(jdbcUrl, user, password);
+             Statement st = con.createStatement()) {
+            st.executeUpdate("DELETE FROM events");
+        }
+
+        BacklogSampler backlog = new BacklogSampler();
+        backlog.start();
+
+        // Productores: tasa total limitada con RateLimiter, repartida entre varios hilos y nodos
+        long totalEvents = (long) config.rate * config.durationSeconds;
+        AtomicLong seq = new AtomicLong();
+        RateLimiter limiter = RateLimiter.create(config.rate);
+        ExecutorService producers = Executors.newFixedThreadPool(config.producers);
+        List<Future<?>> producerResults = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int p = 0; p < config.producers; p++) {
+            producerResults.add(producers.submit(() -> {
+                long n;
+                while ((n = seq.getAndIncrement()) < totalEvents) {
+                    limiter.acquire();
+                    nodes.get((int) (n % nodes.size())).post(new LoadEvent(n, System.nanoTime(), config.nextPayload()));
+                }
+                return null;
+            }));
+        }
+        producers.shutdown();
+        for (Future<?> result : producerResults) {
+            result.get(config.durationSeconds * 2L + 60, TimeUnit.SECONDS);
+        }
+        long producedAt = System.nanoTime();
+        long backlogAtEndOfProduction = backlog.sampleNow();
+
+        // Esperar a que se procese todo lo publicado
+        long deadline = producedAt + TimeUnit.SECONDS.toNanos(config.drainTimeoutSeconds);
+        while (listener.uniqueHandled() < totalEvents && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        long end = System.nanoTime();
+        backlog.stop();
+
+        // Apagado de los nodos por el mismo camino que en producción
+        long closeStart = System.nanoTime();
+        boolean drained = true;
+        for (EventSystem node : nodes) {
+            drained &= node.close(10, TimeUnit.SECONDS);
+        }
+        long closeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - closeStart);
+
+        long saves = repos.stream().mapToLong(r -> r.saves.get()).sum();
+        long workerRoundTrips = repos.stream().mapToLong(r -> r.roundTrips.get()).sum();
+        long handled = listener.uniqueHandled();
+        double elapsedSeconds = (end - start) / 1e9;
+        double throughput = handled / elapsedSeconds;
+        long[] latencies = listener.latenciesMs(seqNo -> true);
+        long[] retried = listener.latenciesMs(listener.retriedBeforeDelivery::contains);
+        long[] firstTry = listener.latenciesMs(seqNo -> !listener.retriedBeforeDelivery.contains(seqNo));
+
+        System.out.println("==== Resultado de carga ====");
+        System.out.printf("Eventos publicados:          %d%n", totalEvents);
+        System.out.printf("Eventos procesados (únicos): %d%n", handled);
+        System.out.printf("Entregas duplicadas:         %d%n", listener.duplicates.get());
+        System.out.printf("Fallos inyectados:           entrega %d, ack %d, claim %d, markAsFailed %d%n",
+                listener.deliveryFailures.get(),
+                repos.stream().mapToLong(r -> r.ackFailures.get()).sum(),
+                repos.stream().mapToLong(r -> r.claimFailures.get()).sum(),
+                repos.stream().mapToLong(r -> r.markAsFailedFailures.get()).sum());
+        System.out.printf("Duración:                    %.1f s%n", elapsedSeconds);
+        System.out.printf("Throughput:                  %.1f eventos/s%n", throughput);
+        printLatencies("Latencia (todos)", latencies);
+        printLatencies("Latencia (primer intento)", firstTry);
+        printLatencies("Latencia (reintentados)", retried);
+        System.out.printf("Round trips DB por evento:   %.2f (publicación %.2f, workers %.2f)%n",
+                (saves + workerRoundTrips) / (double) Math.max(handled, 1),
+                saves / (double) Math.max(totalEvents, 1),
+                workerRoundTrips / (double) Math.max(handled, 1));
+        System.out.printf("Backlog inicial/máx/final:   %d / %d / %d%n",
+                backlog.first(), backlog.max(), backlogAtEndOfProduction);
+        System.out.printf("Crecimiento del backlog:     %.1f eventos/s%n",
+                (backlogAtEndOfProduction - backlog.first()) / ((producedAt - start) / 1e9));
+        System.out.printf("Cierre de nodos:             %s en %d ms%n", drained ? "drenado" : "con trabajo abandonado", closeMs);
+
+        assertEquals(totalEvents, handled, "Todos los eventos deben procesarse antes de load.drainTimeoutSeconds");
+        if (config.maxP99Ms > 0) {
+            assertTrue(percentile(latencies, 0.99) <= config.maxP99Ms,
+                    "p99 por encima del umbral de " + config.maxP99Ms + " ms");
+        }
+        if (config.minThroughput > 0) {
+            assertTrue(throughput >= config.minThroughput,
+                    "Throughput por debajo del umbral de " + config.minThroughput + " eventos/s");
+        }
+    }
+
+    private static void printLatencies(String label, long[] sorted) {
+        System.out.printf("%-28s %d eventos, p50/p99/p999 %d / %d / %d ms (max %d ms)%n", label + ":",
+                sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    // Configuración de la carga leída de system properties
+    static class LoadConfig {
+        final int rate = Integer.getInteger("load.rate", 50);
+        final int durationSeconds = Integer.getInteger("load.durationSeconds", 30);
+        final int producers = Integer.getInteger("load.producers", 2);
+        final int workers = Integer.getInteger("load.workers", 1);
+        final int concurrency = Integer.getInteger("load.concurrency", 10);
+        final int payloadBytes = Integer.getInteger("load.payloadBytes", 256);
+        final int largePayloadBytes = Integer.getInteger("load.largePayloadBytes", 128 * 1024);
+        final double largeRatio = Double.parseDouble(System.getProperty("load.largeRatio", "0"));
+        final String handlerLatency = System.getProperty("load.handlerLatency", "none");
+        final double deliveryFailureRate = Double.parseDouble(System.getProperty("load.deliveryFailureRate", "0"));
+        final double ackFailureRate = Double.parseDouble(System.getProperty("load.ackFailureRate", "0"));
+        final double dbFailureRate = Double.parseDouble(System.getProperty("load.dbFailureRate", "0"));
+        final int drainTimeoutSeconds = Integer.getInteger("load.drainTimeoutSeconds", 120);
+        final long maxP99Ms = Long.getLong("load.maxP99Ms", 0);
+        final double minThroughput = Double.parseDouble(System.getProperty("load.minThroughput", "0"));
+
+        static LoadConfig fromSystemProperties() {
+            return new LoadConfig();
+        }
+
+        String nextPayload() {
+            int size = ThreadLocalRandom.current().nextDouble() < largeRatio ? largePayloadBytes : payloadBytes;
+            return "x".repeat(size);
+        }
+
+        /** none | fixed:MS | uniform:MIN-MAX | exp:MEDIA */
+        long nextHandlerLatencyMs() {
+            String[] parts = handlerLatency.split(":");
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            switch (parts[0]) {
+                case "none":
+                    return 0;
+                case "fixed":
+                    return Long.parseLong(parts[1]);
+                case "uniform":
+                    String[] range = parts[1].split("-");
+                    return random.nextLong(Long.parseLong(range[0]), Long.parseLong(range[1]) + 1);
+                case "exp":
+                    return (long) (-Math.log(1 - random.nextDouble()) * Double.parseDouble(parts[1]));
+                default:
+                    throw new IllegalArgumentException("load.handlerLatency no válido: " + handlerLatency);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "LoadConfig{rate=" + rate + "/s, durationSeconds=" + durationSeconds +
+                    ", producers=" + producers + ", workers=" + workers + ", concurrency=" + concurrency +
+                    ", payloadBytes=" + payloadBytes + ", largePayloadBytes=" + largePayloadBytes +
+                    ", largeRatio=" + largeRatio + ", handlerLatency=" + handlerLatency +
+                    ", deliveryFailureRate=" + deliveryFailureRate + ", ackFailureRate=" + ackFailureRate +
+                    ", dbFailureRate=" + dbFailureRate + "}";
+        }
+    }
+
+    /**
+     * Repositorio que cuenta round trips e inyecta fallos de base de datos:
+     * en el ack, en el claim y en markAsFailed.
+     */
+    static class CountingRepository extends PostgreSQLEventRepository {
+        final AtomicLong saves = new AtomicLong();
+        final AtomicLong roundTrips = new AtomicLong();
+        final AtomicLong ackFailures = new AtomicLong();
+        final AtomicLong claimFailures = new AtomicLong();
+        final AtomicLong markAsFailedFailures = new AtomicLong();
+        private final LoadConfig config;
+
+        CountingRepository(LoadConfig config) throws SQLException {
+            super(jdbcUrl, user, password);
+            this.config = config;
+        }
+
+        @Override
+        public void saveEvent(String eventType, String payload, int maxAttempts) throws SQLException {
+            saves.incrementAndGet();
+            super.saveEvent(eventType, payload, maxAttempts);
+        }
+
+        @Override
+        public List<StoredEvent> claimPendingEvents(int limit, long leaseMs) throws SQLException {
+            if (inject(config.dbFailureRate, claimFailures)) {
+                throw new SQLException("Fallo inyectado en claimPendingEvents");
+            }
+            roundTrips.incrementAndGet();
+            return super.claimPendingEvents(limit, leaseMs);
+        }
+
+        @Override
+        public String loadPayload(long eventId) throws SQLException {
+            roundTrips.incrementAndGet();
+            return super.loadPayload(eventId);
+        }
+
+        @Override
+        public void markAsSuccess(long id) throws SQLException {
+            if (inject(config.ackFailureRate, ackFailures)) {
+                throw new SQLException("Fallo inyectado en markAsSuccess");
+            }
+            roundTrips.incrementAndGet();
+            super.markAsSuccess(id);
+        }
+
+        @Override
+        public void markAsFailed(long id, int attempts, long backoffMs) throws SQLException {
+            if (inject(config.dbFailureRate, markAsFailedFailures)) {
+                throw new SQLException("Fallo inyectado en markAsFailed");
+            }
+            roundTrips.incrementAndGet();
+            super.markAsFailed(id, attempts, backoffMs);
+        }
+
+        @Override
+        public void releaseLeases(Collection<Long> ids) throws SQLException {
+            roundTrips.incrementAndGet();
+            super.releaseLeases(ids);
+        }
+    }
+
+    private static boolean inject(double rate, AtomicLong counter) {
+        if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            counter.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    // Listener que mide la latencia publish-to-handle, simula el tiempo de proceso e inyecta fallos de entrega
+    public static class LatencyListener {
+        private final LoadConfig config;
+        // seq -> latencia de la primera entrega correcta
+        private final ConcurrentMap<Long, Long> latencies = new ConcurrentHashMap<>();
+        final AtomicLong duplicates = new AtomicLong();
+        final AtomicLong deliveryFailures = new AtomicLong();
+        // Eventos cuyo listener falló al menos una vez antes de procesarlos
+        final Set<Long> retriedBeforeDelivery = ConcurrentHashMap.newKeySet();
+
+        LatencyListener(LoadConfig config) {
+            this.config = config;
+        }
+
+        @Subscribe
+        @AllowConcurrentEvents
+        public void handleEvent(String event) throws InterruptedException {
+            long handledAt = System.nanoTime();
+            JSONObject json = new JSONObject(event);
+            long seq = json.getLong("seq");
+
+            // El fallo se lanza desde el listener, igual que una excepción real en un @Subscribe
+            if (inject(config.deliveryFailureRate, deliveryFailures)) {
+                retriedBeforeDelivery.add(seq);
+                throw new IllegalStateException("Fallo inyectado en el listener");
+            }
+
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(handledAt - json.getLong("publishedAtNanos"));
+            if (latencies.putIfAbsent(seq, latencyMs) != null) {
+                duplicates.incrementAndGet();
+            }
+
+            long work = config.nextHandlerLatencyMs();
+            if (work > 0) {
+                Thread.sleep(work);
+            }
+        }
+
+        long uniqueHandled() {
+            return latencies.size();
+        }
+
+        long[] latenciesMs(LongPredicate seqFilter) {
+            long[] sorted = latencies.entrySet().stream()
+                    .filter(e -> seqFilter.test(e.getKey()))
+                    .mapToLong(Map.Entry::getValue)
+                    .toArray();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    // Muestrea cada segundo el número de eventos pendientes
+    class BacklogSampler {
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        private final List<Long> samples = new ArrayList<>();
+
+        void start() {
+            scheduler.scheduleAtFixedRate(() -> {
+                try {
+                    sampleNow();
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+            }, 0, 1, TimeUnit.SECONDS);
+        }
+
+        void stop() throws InterruptedException {
+            scheduler.shutdown();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        long sampleNow() throws SQLException {
+            try (Connection con = DriverManager.getConnection(jdbcUrl, user, password);
+                 Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM events WHERE status='PENDING'")) {
+                rs.next();
+                long pending = rs.getLong(1);
+                synchronized (samples) {
+                    samples.add(pending);
+                }
+                return pending;
+            }
+        }
+
+        long first() {
+            synchronized (samples) {
+                return samples.isEmpty() ? 0 : samples.get(0);
+            }
+        }
+
+        long max() {
+            synchronized (samples) {
+                return samples.stream().mapToLong(Long::longValue).max().orElse(0);
+            }
+        }
+    }
+
+    // Evento de carga: seq identifica duplicados, publishedAtNanos mide la latencia
+    public static class LoadEvent {
+        private final long seq;
+        private final long publishedAtNanos;
+        private final String padding;
+
+        public LoadEvent(long seq, long publishedAtNanos, String padding) {
+            this.seq = seq;
+            this.publishedAtNanos = publishedAtNanos;
+            this.padding = padding;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public long getPublishedAtNanos() {
+            return publishedAtNanos;
+        }
+
+        public String getPadding() {
+            return padding;
+        }
+    }
+}
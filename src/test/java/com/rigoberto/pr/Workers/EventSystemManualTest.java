@@ -52,6 +52,8 @@ class EventSystemManualTest {
 
     @AfterEach
     void tearDown() throws Exception {
+        eventSystem.close();
+
         // Limpiar después de cada test
         try (Connection con = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
              Statement st = con.createStatement()) {
@@ -148,13 +150,15 @@ class EventSystemManualTest {
 
     @Test
     void testEventPersistenceAndRetrieval() throws Exception {
-        // Given: varios eventos guardados
-        eventSystem.post(new TestEvent("event-1", "Message 1"));
-        eventSystem.post(new TestEvent("event-2", "Message 2"));
-        eventSystem.post(new TestEvent("event-3", "Message 3"));
+        // Given: varios eventos guardados sin ningún worker que los reclame
+        // (el worker toma el siguiente evento en cuanto termina uno y podría procesarlos antes de la consulta)
+        eventSystem.close();
+        PostgreSQLEventRepository repo = new PostgreSQLEventRepository(JDBC_URL, USER, PASSWORD);
+        for (int i = 1; i <= 3; i++) {
+            repo.saveEvent(TestEvent.class.getName(), "{\"id\":\"event-" + i + "\"}", 5);
+        }
 
         // When: consultamos los eventos pendientes directamente del repositorio
-        PostgreSQLEventRepository repo = new PostgreSQLEventRepository(JDBC_URL, USER, PASSWORD);
         List<StoredEvent> pendingEvents = repo.fetchPendingEvents(10);
 
         // Then: deben existir los eventos pendientes
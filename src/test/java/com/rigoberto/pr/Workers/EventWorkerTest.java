@@ -0,0 +1,291 @@
+package com.rigoberto.pr.Workers;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.rigoberto.pr.Models.StoredEvent;
+import com.rigoberto.pr.Repositories.EventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del bucle de reintentos de EventWorker con un repositorio en memoria.
+ */
+class EventWorkerTest {
+
+    private EventWorker worker;
+
+    @AfterEach
+    void tearDown() {
+        if (worker != null) {
+            worker.close(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testAckOnlyFailureIsRetriedLocallyWithoutReposting() throws Exception {
+        // Given: el ack falla 2 veces y hay 3 intentos locales
+        StubRepository repo = new StubRepository(2);
+        PostCounter posts = new PostCounter();
+        worker = startWorker(repo, posts, RetryPolicy.defaults());
+
+        // Then: el evento se marca SUCCESS sin volver a publicarse ni persistir un reintento
+        assertTrue(repo.done.await(5, TimeUnit.SECONDS), "El evento debe completarse");
+        assertEquals(3, repo.successCalls.get(), "Debe reintentar el ack hasta que funcione");
+        assertEquals(1, posts.count.get(), "El evento solo debe publicarse una vez");
+        assertTrue(repo.failed.isEmpty(), "No debe persistirse ningún reintento");
+    }
+
+    @Test
+    void testExhaustedLocalAttemptsPersistRetryWithJitteredBackoff() throws Exception {
+        // Given: el ack falla siempre
+        StubRepository repo = new StubRepository(Integer.MAX_VALUE);
+        PostCounter posts = new PostCounter();
+        worker = startWorker(repo, posts, RetryPolicy.defaults());
+
+        // Then: tras 3 intentos locales se persiste el reintento con 2^1 segundos menos jitter
+        assertTrue(repo.done.await(5, TimeUnit.SECONDS), "Debe persistirse un reintento");
+        assertEquals(3, repo.successCalls.get());
+        assertEquals(1, posts.count.get());
+        assertEquals(1, repo.failed.size());
+        long[] failure = repo.failed.get(0);
+        assertEquals(1, failure[0], "Debe contar el intento persistido");
+        assertTrue(failure[1] >= 1000 && failure[1] <= 2000, "Backoff fuera de rango: " + failure[1]);
+    }
+
+    @Test
+    void testOpenCircuitBreakerSkipsLocalRetries() throws Exception {
+        // Given: un breaker que se abre con el primer fallo
+        StubRepository repo = new StubRepository(Integer.MAX_VALUE);
+        PostCounter posts = new PostCounter();
+        worker = startWorker(repo, posts, RetryPolicy.builder()
+                .breakerFailureThreshold(1)
+                .breakerOpenMs(60_000)
+                .build());
+
+        // Then: el primer fallo va directo al reintento persistido
+        assertTrue(repo.done.await(5, TimeUnit.SECONDS), "Debe persistirse un reintento");
+        assertEquals(1, repo.successCalls.get(), "No debe haber reintentos locales con el breaker abierto");
+        assertEquals(1, repo.failed.size());
+    }
+
+    @Test
+    void testListenerFailureIsRetriedLocally() throws Exception {
+        // Given: un listener que falla 2 veces y luego funciona
+        StubRepository repo = new StubRepository(0);
+        FlakyListener listener = new FlakyListener(2);
+        EventBus bus = EventWorker.newEventBus();
+        bus.register(listener);
+        worker = new EventWorker(repo, bus, 1, RetryPolicy.defaults());
+        worker.start();
+
+        // Then: el evento se vuelve a publicar en memoria hasta que el listener termina bien
+        assertTrue(repo.done.await(5, TimeUnit.SECONDS), "El evento debe completarse");
+        assertEquals(3, listener.calls.get(), "El listener debe recibir el evento 3 veces");
+        assertEquals(1, repo.successCalls.get(), "Solo se confirma cuando el listener termina bien");
+        assertTrue(repo.failed.isEmpty(), "No debe persistirse ningún reintento");
+    }
+
+    @Test
+    void testClaimsOnlyFreeCapacityAndReleasesUnfinishedEventsOnClose() throws Exception {
+        // Given: 3 eventos pendientes, un solo hilo y un listener que no termina a tiempo
+        StubRepository repo = new StubRepository(0, 3);
+        BlockingListener listener = new BlockingListener();
+        EventBus bus = EventWorker.newEventBus();
+        bus.register(listener);
+        worker = new EventWorker(repo, bus, 1, RetryPolicy.defaults());
+        worker.start();
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS), "El evento debe empezar a procesarse");
+
+        // When: el plazo de drenado vence con el listener aún trabajando
+        boolean drained = worker.close(200, TimeUnit.MILLISECONDS);
+
+        // Then: solo se reclamó lo que cabía, el evento en curso no se confirma y su lease se libera
+        assertFalse(drained, "No debe reportar drenado completo");
+        assertEquals(List.of(1), repo.claimLimits, "Solo debe reclamar la capacidad libre");
+        assertEquals(List.of(1L), repo.released, "Debe liberar el lease del evento sin terminar");
+        assertEquals(0, repo.successCalls.get(), "Un evento abandonado no debe marcarse SUCCESS");
+        assertTrue(repo.failed.isEmpty());
+        worker = null;
+    }
+
+    @Test
+    void testEventsClaimedWhileClosingAreReleased() throws Exception {
+        // Given: un reclamo que sigue en curso cuando vence el plazo de drenado
+        StubRepository repo = new StubRepository(0, 2);
+        repo.claimGate = new CountDownLatch(1);
+        EventBus bus = EventWorker.newEventBus();
+        bus.register(new PostCounter());
+        worker = new EventWorker(repo, bus, 2, RetryPolicy.defaults());
+        worker.start();
+        assertTrue(repo.claimStarted.await(5, TimeUnit.SECONDS), "Debe empezar a reclamar");
+        worker.close(200, TimeUnit.MILLISECONDS);
+
+        // When: el reclamo termina con el pool ya apagado
+        repo.claimGate.countDown();
+
+        // Then: los eventos reclamados se liberan en lugar de quedarse con el lease
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (repo.released.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(List.of(1L, 2L), repo.released, "Debe liberar los eventos que no pudo encolar");
+        assertEquals(0, repo.successCalls.get());
+        worker = null;
+    }
+
+    @Test
+    void testFinishedEventsFreeSlotsWithoutWaitingForNextTick() throws Exception {
+        // Given: 20 eventos pendientes y 2 hilos (el tick de 1s solo daría para 2 eventos/s)
+        StubRepository repo = new StubRepository(0, 20);
+        EventBus bus = EventWorker.newEventBus();
+        bus.register(new PostCounter());
+        worker = new EventWorker(repo, bus, 2, RetryPolicy.defaults());
+        worker.start();
+
+        // Then: cada evento que termina reclama el siguiente sin esperar al tick
+        assertTrue(repo.done.await(3, TimeUnit.SECONDS), "Los 20 eventos deben completarse sin esperar al tick");
+        assertEquals(20, repo.successCalls.get());
+        assertTrue(repo.claimLimits.stream().allMatch(limit -> limit <= 2), "Nunca debe reclamar más que los hilos libres");
+    }
+
+    private EventWorker startWorker(StubRepository repo, PostCounter posts, RetryPolicy policy) {
+        EventBus bus = EventWorker.newEventBus();
+        bus.register(posts);
+        EventWorker w = new EventWorker(repo, bus, 1, policy);
+        w.start();
+        return w;
+    }
+
+    // Listener que no termina hasta que se interrumpe su hilo
+    public static class BlockingListener {
+        final CountDownLatch started = new CountDownLatch(1);
+
+        @Subscribe
+        public void handleEvent(String event) throws InterruptedException {
+            started.countDown();
+            Thread.sleep(60_000);
+        }
+    }
+
+    // Listener que lanza una excepción las primeras N veces
+    public static class FlakyListener {
+        final AtomicInteger calls = new AtomicInteger();
+        private final int failures;
+
+        public FlakyListener(int failures) {
+            this.failures = failures;
+        }
+
+        @Subscribe
+        public void handleEvent(String event) {
+            if (calls.incrementAndGet() <= failures) {
+                throw new IllegalStateException("Fallo transitorio simulado");
+            }
+        }
+    }
+
+    // Cuenta las publicaciones en el EventBus
+    public static class PostCounter {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Subscribe
+        public void handleEvent(String event) {
+            count.incrementAndGet();
+        }
+    }
+
+    // Repositorio en memoria; markAsSuccess falla las primeras N veces
+    static class StubRepository implements EventRepository {
+        final AtomicInteger successCalls = new AtomicInteger();
+        final List<long[]> failed = new ArrayList<>();
+        final List<Integer> claimLimits = new CopyOnWriteArrayList<>();
+        final List<Long> released = new CopyOnWriteArrayList<>();
+        final CountDownLatch done;
+        final CountDownLatch claimStarted = new CountDownLatch(1);
+        // Si existe, claimPendingEvents espera a que se abra
+        volatile CountDownLatch claimGate;
+        private final Queue<StoredEvent> pending = new ConcurrentLinkedQueue<>();
+        private final int ackFailures;
+
+        StubRepository(int ackFailures) {
+            this(ackFailures, 1);
+        }
+
+        StubRepository(int ackFailures, int events) {
+            this.ackFailures = ackFailures;
+            this.done = new CountDownLatch(events);
+            for (long id = 1; id <= events; id++) {
+                pending.add(new StoredEvent(id, String.class.getName(), "{}", 0, 5));
+            }
+        }
+
+        @Override
+        public List<StoredEvent> claimPendingEvents(int limit, long leaseMs) throws SQLException {
+            claimLimits.add(limit);
+            claimStarted.countDown();
+            if (claimGate != null) {
+                try {
+                    claimGate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException(e);
+                }
+            }
+            List<StoredEvent> list = new ArrayList<>();
+            StoredEvent ev;
+            while (list.size() < limit && (ev = pending.poll()) != null) {
+                list.add(ev);
+            }
+            return list;
+        }
+
+        @Override
+        public void markAsSuccess(long id) throws SQLException {
+            if (successCalls.incrementAndGet() <= ackFailures) {
+                throw new SQLException("Fallo simulado");
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void markAsFailed(long id, int attempts, long backoffMs) {
+            synchronized (failed) {
+                failed.add(new long[]{attempts, backoffMs});
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void saveEvent(String eventType, String payload, int maxAttempts) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<StoredEvent> fetchPendingEvents(int limit) {
+            return new ArrayList<>(pending);
+        }
+
+        @Override
+        public void releaseLeases(Collection<Long> ids) {
+            released.addAll(ids);
+        }
+
+        @Override
+        public String loadPayload(long eventId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
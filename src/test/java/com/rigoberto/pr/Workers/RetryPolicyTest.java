@@ -0,0 +1,68 @@
+package com.rigoberto.pr.Workers;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    void testLocalDelayGrowsExponentiallyWithJitterAndCap() {
+        RetryPolicy policy = RetryPolicy.builder()
+                .localMaxAttempts(5)
+                .localMaxDelayMs(150)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            long first = policy.localDelayMs(1);
+            long second = policy.localDelayMs(2);
+            long capped = policy.localDelayMs(4);
+
+            assertTrue(first >= 25 && first <= 50, "Primer intento entre 25 y 50ms: " + first);
+            assertTrue(second >= 50 && second <= 100, "Segundo intento entre 50 y 100ms: " + second);
+            assertTrue(capped >= 75 && capped <= 150, "El delay local no debe superar el máximo: " + capped);
+        }
+    }
+
+    @Test
+    void testPersistedBackoffHasJitter() {
+        RetryPolicy policy = RetryPolicy.defaults();
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 200; i++) {
+            long backoff = policy.persistedBackoffMs(1);
+            assertTrue(backoff >= 1000 && backoff <= 2000, "Backoff persistido fuera de rango: " + backoff);
+            min = Math.min(min, backoff);
+            max = Math.max(max, backoff);
+        }
+        assertTrue(max > min, "El backoff persistido debe variar entre reintentos");
+    }
+
+    @Test
+    void testCircuitBreakerOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000);
+
+        breaker.recordFailure();
+        assertTrue(breaker.allowsLocalRetry());
+
+        breaker.recordFailure();
+        assertFalse(breaker.allowsLocalRetry(), "Debe abrirse tras 2 fallos consecutivos");
+
+        breaker.recordSuccess();
+        assertTrue(breaker.allowsLocalRetry(), "Un éxito debe cerrarlo");
+    }
+
+    @Test
+    void testInvalidConfigurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().localMaxAttempts(0).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().localInitialDelayMs(-1).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().localMaxDelayMs(-1).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().persistedBaseMs(-1).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().multiplier(0.5).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().multiplier(Double.NaN).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().jitterFactor(1.5).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().breakerFailureThreshold(0).build());
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().breakerOpenMs(-1).build());
+    }
+}